@@ -13,9 +13,12 @@ import de.romjaki.pluggabledino.events.GameRenderEvent;
 import de.romjaki.pluggabledino.events.GameUpdateEvent;
 import de.romjaki.pluggabledino.events.InitEvent;
 import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -25,10 +28,34 @@ import java.util.List;
  */
 public class MLPluginBase extends IPlugin {
 
+    /**
+     * Die Anzahl der Ticks pro Sekunde welche das Spiel erreichen soll
+     */
+    private static final int TARGET_TICK_RATE = 60;
+    /**
+     * Die Zeit welche ein Tick höchstens brauchen darf in Millisekunden
+     */
+    private static final double TICK_BUDGET_MS = 1000.0 / TARGET_TICK_RATE;
+    /**
+     * Wie oft die Texte des HUDs neu berechnet werden in Millisekunden
+     */
+    private static final long HUD_REFRESH_MS = 250;
+    private static final double[] PERCENTILES = {0.5, 0.99};
+    private static final File EXPORT_DIRECTORY = new File("performance");
+    private static final DateTimeFormatter EXPORT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
     private List<Genetype<Float>> genetypes = new ArrayList<>();
     private BaseAlgorithm[] algorithm;
     private ToggleButton button;
+    private ToggleButton hudButton;
+    private PerformanceMonitor monitor = new PerformanceMonitor(600);
+    private int lastIndex = -1;
+    private float lastScore;
+
+    private long[] percentileResult = new long[PERCENTILES.length];
+    private List<String> hudLines = new ArrayList<>();
+    private List<Color> hudColors = new ArrayList<>();
+    private long lastHudRefresh;
 
     /**
      * Ein Eventhandler welcher am Start aufgerufen wird
@@ -57,6 +84,12 @@ public class MLPluginBase extends IPlugin {
                 "Default", "Evolved"
         ), MainKt.HEIGHT * 2 / 3f, MainKt.WIDTH / 2f);
         event.getSettings().addSettingsElement(button);
+
+        // Ein Knopf welcher die Anzeige der Performance im Spiel umschaltet
+        hudButton = new ToggleButton(Arrays.asList(
+                "HUD aus", "HUD an"
+        ), MainKt.HEIGHT * 5 / 6f, MainKt.WIDTH / 2f);
+        event.getSettings().addSettingsElement(hudButton);
     }
 
     /**
@@ -67,6 +100,24 @@ public class MLPluginBase extends IPlugin {
     @EventHandler
     public void onGameLost(GameLostEvent event) {
         System.out.println("dein Ergebnis war " + event.getScore());
+        lastScore = event.getScore();
+
+        // Speichere die Messwerte der Runde falls das HUD aktiv ist. Der Dateiname enthält Algorithmus und Zeit,
+        // damit die Messungen verschiedener Algorithmen verglichen werden können.
+        if (hudButton.getIndex() == 1) {
+            String name = String.format("%s-%s.csv",
+                    algorithm[button.getIndex()].getClass().getSimpleName(),
+                    LocalDateTime.now().format(EXPORT_FORMAT));
+            try {
+                if (!EXPORT_DIRECTORY.isDirectory() && !EXPORT_DIRECTORY.mkdirs())
+                    throw new IOException("Konnte " + EXPORT_DIRECTORY + " nicht erstellen");
+                monitor.export(new File(EXPORT_DIRECTORY, name));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // Die nächste Runde soll nicht mit den Messwerten dieser Runde vermischt werden
+        monitor.reset();
     }
 
     /**
@@ -79,11 +130,82 @@ public class MLPluginBase extends IPlugin {
         // entferne Vögel welche zurzeit noch nicht von unserem DefaultAlgorithmen berücksichtigt werden
         event.getWorld().getBirdd().clear();
 
-        // Nutze den in den Einstellungen gewählten algorithmus
-        if (algorithm[button.getIndex()].getJumpFunction().apply(event.getWorld()))
+        // Messwerte eines anderen Algorithmus sollen nicht vermischt werden
+        int index = button.getIndex();
+        if (index != lastIndex) {
+            monitor.reset();
+            lastIndex = index;
+        }
+
+        // Nutze den in den Einstellungen gewählten algorithmus und miss bei aktivem HUD wie lange die Entscheidung dauert
+        boolean measure = hudButton.getIndex() == 1;
+        if (measure)
+            monitor.begin();
+        boolean jump = algorithm[index].getJumpFunction().apply(event.getWorld());
+        if (measure)
+            monitor.end();
+        if (jump)
             event.getWorld().tryJump(); // und springe falls dieser sagt.
         // tryJump springt nur wenn der Spieler auch springen könnte, also nicht in der Luft.
         // Tatsächlich wird bei Spieler input auch nur diese Methode aufgerufen
     }
 
+    /**
+     * Ein Eventhandler welcher bei jedem Zeichnen des Spiels aufgerufen wird
+     *
+     * @param event Ein Event welches Informationen wie die Graphics Instanz enthält
+     */
+    @EventHandler
+    public void onRender(GameRenderEvent event) {
+        if (hudButton.getIndex() != 1)
+            return;
+
+        // Die Texte werden nur einige Male pro Sekunde berechnet, damit das HUD den Game Loop nicht selbst bremst
+        long now = System.currentTimeMillis();
+        if (now - lastHudRefresh >= HUD_REFRESH_MS) {
+            refreshHud();
+            lastHudRefresh = now;
+        }
+
+        Graphics g = event.getGraphics();
+        for (int i = 0; i < hudLines.size(); i++) {
+            g.setColor(hudColors.get(i));
+            g.drawString(hudLines.get(i), 10, 30 + i * 20);
+        }
+    }
+
+    /**
+     * Berechnet die Texte des HUDs aus den aktuellen Messwerten neu.
+     */
+    private void refreshHud() {
+        monitor.getLatencyPercentiles(PERCENTILES, percentileResult);
+        double p50 = percentileResult[0] / 1e6;
+        double p99 = percentileResult[1] / 1e6;
+        boolean overBudget = p99 > TICK_BUDGET_MS;
+        hudLines.clear();
+        hudColors.clear();
+        addHudLine(String.format("Algorithmus: %s", algorithm[button.getIndex()].getClass().getSimpleName()), Color.black);
+        addHudLine(String.format("Budget: %.3f ms (%d/s)", TICK_BUDGET_MS, TARGET_TICK_RATE), Color.black);
+        addHudLine(String.format("Entscheidung p50: %.3f ms", p50), Color.black);
+        // Die p99 Zeile wird rot sobald die Entscheidung das Budget eines Ticks überschreitet
+        addHudLine(String.format("Entscheidung p99: %.3f ms%s", p99, overBudget ? " - über Budget!" : ""),
+                overBudget ? Color.red : Color.black);
+        addHudLine(String.format("Tickrate: %.1f/s", monitor.getTickRate()), Color.black);
+        addHudLine(monitor.isAllocationSupported()
+                ? String.format("Allokation: %.1f KB/s", monitor.getAllocationRate() / 1024)
+                : "Allokation: nicht unterstützt", Color.black);
+        addHudLine(String.format("Letzter Score: %s", lastScore), Color.black);
+    }
+
+    /**
+     * Fügt eine Zeile mit ihrer Farbe zum HUD hinzu.
+     *
+     * @param line  der Text der Zeile
+     * @param color die Farbe der Zeile
+     */
+    private void addHudLine(String line, Color color) {
+        hudLines.add(line);
+        hudColors.add(color);
+    }
+
 }
@@ -0,0 +1,180 @@
+package de.romjaki.mlplugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Misst wie lange die Entscheidungen der Algorithmen pro Tick dauern. Die Messwerte werden in Ringpuffern
+ * gespeichert, damit beim Aufzeichnen keine Objekte erzeugt werden und der Game Loop nicht gebremst wird.
+ */
+public class PerformanceMonitor {
+
+    private final int capacity;
+    private final long[] latencies;
+    private final long[] tickTimes;
+    private final long[] allocations;
+    private int position;
+    private int size;
+
+    private final long[] scratch;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final boolean allocationSupported;
+    private long start;
+    private long startAllocated;
+    private long lastAllocated = -1;
+
+    /**
+     * @param capacity die Anzahl der Ticks welche gespeichert werden
+     */
+    public PerformanceMonitor(int capacity) {
+        this.capacity = capacity;
+        this.latencies = new long[capacity];
+        this.tickTimes = new long[capacity];
+        this.allocations = new long[capacity];
+        this.scratch = new long[capacity];
+        this.allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Startet die Messung eines Ticks. Muss auf dem Update Thread aufgerufen werden.
+     */
+    public void begin() {
+        startAllocated = allocatedBytes();
+        start = System.nanoTime();
+    }
+
+    /**
+     * Beendet die Messung eines Ticks und speichert die Werte im Ringpuffer.
+     */
+    public void end() {
+        record(start, System.nanoTime() - start, startAllocated);
+    }
+
+    /**
+     * Speichert einen Tick im Ringpuffer. Die Allokationen werden zwischen zwei Ticks gemessen und umfassen damit
+     * alles was der Thread seit dem letzten Tick alloziert hat.
+     *
+     * @param tickStart der Start des Ticks in Nanosekunden
+     * @param latency   die Dauer der Entscheidung in Nanosekunden
+     * @param allocated der Zählerstand der vom Thread allozierten Bytes am Start des Ticks
+     */
+    void record(long tickStart, long latency, long allocated) {
+        allocations[position] = lastAllocated < 0 ? 0 : allocated - lastAllocated;
+        lastAllocated = allocated;
+        latencies[position] = latency;
+        tickTimes[position] = tickStart;
+        position = (position + 1) % capacity;
+        if (size < capacity)
+            size++;
+    }
+
+    /**
+     * Gibt die Anzahl der vom aktuellen Thread allozierten Bytes zurück, falls die JVM dies unterstützt.
+     *
+     * @return die allozierten Bytes oder 0
+     */
+    private long allocatedBytes() {
+        if (!allocationSupported)
+            return 0;
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Gibt an ob die Allokationsrate gemessen werden kann.
+     *
+     * @return true falls die JVM Allokationen pro Thread zählt
+     */
+    public boolean isAllocationSupported() {
+        return allocationSupported;
+    }
+
+    /**
+     * Berechnet mehrere Perzentile der Entscheidungsdauer. Die Werte werden nur einmal sortiert und dabei ein
+     * wiederverwendeter Puffer genutzt, damit beim Zeichnen keine Arrays erzeugt werden.
+     *
+     * @param percentiles die Perzentile zwischen 0 und 1
+     * @param result      das Array in welches die Dauern in Nanosekunden geschrieben werden
+     */
+    public void getLatencyPercentiles(double[] percentiles, long[] result) {
+        if (size == 0) {
+            Arrays.fill(result, 0, percentiles.length, 0);
+            return;
+        }
+        System.arraycopy(latencies, 0, scratch, 0, size);
+        Arrays.sort(scratch, 0, size);
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] * size) - 1;
+            result[i] = scratch[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+
+    /**
+     * Berechnet die Tickrate über alle gespeicherten Ticks.
+     *
+     * @return die Ticks pro Sekunde
+     */
+    public double getTickRate() {
+        if (size < 2)
+            return 0;
+        long duration = tickTimes[newestIndex()] - tickTimes[oldestIndex()];
+        return duration <= 0 ? 0 : (size - 1) * 1e9 / duration;
+    }
+
+    /**
+     * Berechnet die Allokationsrate des Update Threads zwischen dem ältesten und dem neuesten Tick.
+     *
+     * @return die allozierten Bytes pro Sekunde
+     */
+    public double getAllocationRate() {
+        if (size < 2)
+            return 0;
+        long duration = tickTimes[newestIndex()] - tickTimes[oldestIndex()];
+        if (duration <= 0)
+            return 0;
+        // der älteste Eintrag enthält die Allokationen vor dem gemessenen Zeitraum und wird ausgelassen
+        long total = 0;
+        for (int i = 1; i < size; i++)
+            total += allocations[(oldestIndex() + i) % capacity];
+        return total * 1e9 / duration;
+    }
+
+    /**
+     * Leert alle Ringpuffer, z.B. nach dem Ende einer Runde oder einem Wechsel des Algorithmus.
+     */
+    public void reset() {
+        position = 0;
+        size = 0;
+        lastAllocated = -1;
+    }
+
+    /**
+     * Speichert alle gespeicherten Ticks vom ältesten zum neuesten als CSV Datei.
+     *
+     * @param file die Zieldatei
+     * @throws IOException Bei fehlenden Berechtigungen
+     */
+    public void export(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("tick_start_ns,latency_ns,allocated_bytes_since_last_tick");
+            for (int i = 0; i < size; i++) {
+                int index = (oldestIndex() + i) % capacity;
+                writer.printf("%d,%d,%d%n", tickTimes[index], latencies[index], allocations[index]);
+            }
+        }
+    }
+
+    private int oldestIndex() {
+        return size < capacity ? 0 : position;
+    }
+
+    private int newestIndex() {
+        return (position - 1 + capacity) % capacity;
+    }
+}
@@ -0,0 +1,88 @@
+package de.romjaki.mlplugin;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceMonitorTest {
+
+    private static final double[] PERCENTILES = {0.5, 0.99};
+    private static final String HEADER = "tick_start_ns,latency_ns,allocated_bytes_since_last_tick";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void emptyBuffer() throws IOException {
+        PerformanceMonitor monitor = new PerformanceMonitor(4);
+        long[] result = {-1, -1};
+        monitor.getLatencyPercentiles(PERCENTILES, result);
+
+        assertArrayEquals(new long[]{0, 0}, result);
+        assertEquals(0, monitor.getTickRate(), 0);
+        assertEquals(0, monitor.getAllocationRate(), 0);
+        assertEquals(Arrays.asList(HEADER), export(monitor));
+    }
+
+    @Test
+    public void bufferBeforeWrap() throws IOException {
+        PerformanceMonitor monitor = new PerformanceMonitor(4);
+        monitor.record(0, 10, 100);
+        monitor.record(1000, 20, 150);
+        monitor.record(2000, 30, 250);
+        long[] result = new long[2];
+        monitor.getLatencyPercentiles(PERCENTILES, result);
+
+        assertArrayEquals(new long[]{20, 30}, result);
+        assertEquals(2 * 1e9 / 2000, monitor.getTickRate(), 1e-6);
+        // die Allokationen vor dem ältesten Tick zählen nicht mit
+        assertEquals(150 * 1e9 / 2000, monitor.getAllocationRate(), 1e-6);
+        assertEquals(Arrays.asList(HEADER, "0,10,0", "1000,20,50", "2000,30,100"), export(monitor));
+    }
+
+    @Test
+    public void bufferAfterWrap() throws IOException {
+        PerformanceMonitor monitor = new PerformanceMonitor(4);
+        for (int i = 0; i < 6; i++)
+            monitor.record(i * 1000, 10 * (i + 1), 100 * i);
+        long[] result = new long[2];
+        monitor.getLatencyPercentiles(PERCENTILES, result);
+
+        assertArrayEquals(new long[]{40, 60}, result);
+        assertEquals(3 * 1e9 / 3000, monitor.getTickRate(), 1e-6);
+        assertEquals(300 * 1e9 / 3000, monitor.getAllocationRate(), 1e-6);
+        assertEquals(Arrays.asList(HEADER, "2000,30,100", "3000,40,100", "4000,50,100", "5000,60,100"),
+                export(monitor));
+    }
+
+    @Test
+    public void reset() throws IOException {
+        PerformanceMonitor monitor = new PerformanceMonitor(4);
+        for (int i = 0; i < 6; i++)
+            monitor.record(i * 1000, 10, 100 * i);
+        monitor.reset();
+
+        assertEquals(0, monitor.getTickRate(), 0);
+        assertEquals(Arrays.asList(HEADER), export(monitor));
+
+        // nach dem Leeren beginnt die Allokationsmessung neu
+        monitor.record(10000, 5, 2000);
+        assertEquals(Arrays.asList(HEADER, "10000,5,0"), export(monitor));
+    }
+
+    private List<String> export(PerformanceMonitor monitor) throws IOException {
+        File file = folder.newFile();
+        monitor.export(file);
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}